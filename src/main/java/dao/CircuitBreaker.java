@@ -0,0 +1,130 @@
+package dao;
+
+import java.util.logging.Logger;
+
+// Circuit breaker со скользящим окном последних вызовов.
+// CLOSED: вызовы проходят, ошибки и медленные вызовы считаются в окне.
+// OPEN: вызовы сразу отклоняются, пока не пройдёт openMs.
+// HALF_OPEN: пропускается один пробный вызов; успех замыкает, ошибка снова размыкает.
+// tryAcquire возвращает номер поколения (меняется при каждой смене состояния): результаты
+// вызовов, начатых в другом поколении, на состояние не влияют.
+public class CircuitBreaker {
+    private static final Logger logger = Logger.getLogger(CircuitBreaker.class.getName());
+
+    // tryAcquire: вызов не разрешён
+    public static final long REJECTED = -1;
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final boolean[] window;
+    private final int failureRatePercent;
+    private final long slowMs;
+    private final long openMs;
+
+    private State state = State.CLOSED;
+    private int position;
+    private int recorded;
+    private int failures;
+    private long openedAt;
+    private long generation;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(String name, int windowSize, int failureRatePercent, long slowMs, long openMs) {
+        this.name = name;
+        this.window = new boolean[windowSize];
+        this.failureRatePercent = failureRatePercent;
+        this.slowMs = slowMs;
+        this.openMs = openMs;
+    }
+
+    // Разрешение на вызов (его передают в onResult/cancel) или REJECTED; в HALF_OPEN - только одна проба
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMs)
+                return REJECTED;
+            changeState(State.HALF_OPEN);
+            logger.info("Circuit breaker " + name + ": проверка восстановления");
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight)
+                return REJECTED;
+            probeInFlight = true;
+        }
+        return generation;
+    }
+
+    public synchronized void onResult(long permit, boolean error, long elapsedMs) {
+        boolean failed = error || elapsedMs >= slowMs;
+
+        // Вызов начат в другом состоянии (например, медленный запрос из CLOSED завершился
+        // уже в HALF_OPEN) - это не результат пробы и не часть текущего окна
+        if (permit != generation || state == State.OPEN)
+            return;
+
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            if (failed) {
+                open();
+            } else {
+                reset();
+                logger.info("Circuit breaker " + name + " замкнут");
+            }
+            return;
+        }
+
+        if (recorded == window.length) {
+            if (window[position])
+                failures--;
+        } else {
+            recorded++;
+        }
+        window[position] = failed;
+        if (failed)
+            failures++;
+        position = (position + 1) % window.length;
+
+        if (recorded == window.length && failures * 100 >= failureRatePercent * recorded)
+            open();
+    }
+
+    // Разрешённый вызов так и не был выполнен (например, не хватило места в bulkhead)
+    public synchronized void cancel(long permit) {
+        if (permit == generation && state == State.HALF_OPEN)
+            probeInFlight = false;
+    }
+
+    // Сколько мс осталось до пробного вызова (0, если breaker не разомкнут)
+    public synchronized long remainingOpenMs() {
+        if (state != State.OPEN)
+            return 0;
+        return Math.max(0, openMs - (System.currentTimeMillis() - openedAt));
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getFailureRate() {
+        return recorded == 0 ? 0 : failures * 100 / recorded;
+    }
+
+    private void open() {
+        changeState(State.OPEN);
+        openedAt = System.currentTimeMillis();
+        logger.warning("Circuit breaker " + name + " разомкнут, ошибок: " + getFailureRate() + "%");
+    }
+
+    private void reset() {
+        changeState(State.CLOSED);
+        position = 0;
+        recorded = 0;
+        failures = 0;
+    }
+
+    private void changeState(State newState) {
+        state = newState;
+        generation++;
+        probeInFlight = false;
+    }
+}
@@ -6,22 +6,34 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class ClientDAO {
-    private final Connection conn;
+    private final ConnectionRouter router;
+    private final DaoGuard guard = DaoGuard.named("clients");
+    private final SingleFlight<Client> reads = new SingleFlight<>(guard);
 
     public ClientDAO(Connection conn) {
-        this.conn = conn;
+        this(new ConnectionRouter(conn));
+    }
+
+    public ClientDAO(ConnectionRouter router) {
+        this.router = router;
     }
 
     public void create(Client client) {
         String sql = "INSERT INTO Clients (full_name, contacts) VALUES (?, ?)";
-        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, client.getFullName());
-            ps.setString(2, client.getContacts());
-            ps.executeUpdate();
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next())
-                    client.setId(rs.getInt(1));
-            }
+        try {
+            guard.call("create", timeout -> router.write(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setQueryTimeout(timeout);
+                    ps.setString(1, client.getFullName());
+                    ps.setString(2, client.getContacts());
+                    ps.executeUpdate();
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next())
+                            client.setId(rs.getInt(1));
+                    }
+                }
+                return null;
+            }));
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -29,28 +41,41 @@ public class ClientDAO {
 
     public Client read(int id) {
         String sql = "SELECT * FROM Clients WHERE id=?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, id);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next())
-                return new Client(
-                        rs.getInt("id"),
-                        rs.getString("full_name"),
-                        rs.getString("contacts")
-                );
+        SingleFlight.Loader<Client> loader = () -> guard.call("read", timeout -> router.read(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setQueryTimeout(timeout);
+                ps.setInt(1, id);
+                ResultSet rs = ps.executeQuery();
+                if (rs.next())
+                    return new Client(
+                            rs.getInt("id"),
+                            rs.getString("full_name"),
+                            rs.getString("contacts")
+                    );
+            }
+            return null;
+        }));
+
+        try {
+            return router.hasRecentWrite() ? loader.load() : reads.execute("read", "read:" + id, loader);
         } catch (SQLException e) {
-            e.printStackTrace();
+            // null значит "клиента нет", поэтому сбой чтения вернуть как null нельзя
+            throw guard.unavailable("read", e);
         }
-        return null;
     }
 
     public void update(Client client) {
         String sql = "UPDATE Clients SET full_name=?, contacts=? WHERE id=?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, client.getFullName());
-            ps.setString(2, client.getContacts());
-            ps.setInt(3, client.getId());
-            ps.executeUpdate();
+        try {
+            guard.call("update", timeout -> router.write(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setQueryTimeout(timeout);
+                    ps.setString(1, client.getFullName());
+                    ps.setString(2, client.getContacts());
+                    ps.setInt(3, client.getId());
+                    return ps.executeUpdate();
+                }
+            }));
         } catch (SQLException e) {
             e.printStackTrace();
         }
@@ -58,29 +83,40 @@ public class ClientDAO {
 
     public void delete(int id) {
         String sql = "DELETE FROM Clients WHERE id=?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, id);
-            ps.executeUpdate();
+        try {
+            guard.call("delete", timeout -> router.write(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setQueryTimeout(timeout);
+                    ps.setInt(1, id);
+                    return ps.executeUpdate();
+                }
+            }));
         } catch (SQLException e) {
             e.printStackTrace();
         }
     }
 
     public List<Client> getAll() {
-        List<Client> clients = new ArrayList<>();
         String sql = "SELECT * FROM Clients";
-        try (Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                clients.add(new Client(
-                        rs.getInt("id"),
-                        rs.getString("full_name"),
-                        rs.getString("contacts")
-                ));
-            }
+        try {
+            return guard.call("getAll", timeout -> router.read(conn -> {
+                List<Client> clients = new ArrayList<>();
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.setQueryTimeout(timeout);
+                    try (ResultSet rs = stmt.executeQuery(sql)) {
+                        while (rs.next()) {
+                            clients.add(new Client(
+                                    rs.getInt("id"),
+                                    rs.getString("full_name"),
+                                    rs.getString("contacts")
+                            ));
+                        }
+                    }
+                }
+                return clients;
+            }));
         } catch (SQLException e) {
-            e.printStackTrace();
+            throw guard.unavailable("getAll", e);
         }
-        return clients;
     }
 }
@@ -0,0 +1,218 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+// Маршрутизация запросов между primary и репликами.
+// Запись всегда идёт на primary; чтение - на реплики, кроме случаев, когда
+// в этой же сессии недавно была запись (read-your-writes).
+public class ConnectionRouter {
+    private static final Logger logger = Logger.getLogger(ConnectionRouter.class.getName());
+
+    // Идентификатор HTTP-сессии текущего запроса (выставляется в AuthFilter)
+    private static final ThreadLocal<String> currentSession = new ThreadLocal<>();
+
+    private final Connection primary;
+    private final List<Replica> replicas;
+    private final Strategy strategy;
+    private final long retryMs;
+    private final long readYourWritesMs;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<String, Long> lastWrite = new ConcurrentHashMap<>();
+
+    public interface SqlWork<T> {
+        T apply(Connection conn) throws SQLException;
+    }
+
+    public enum Strategy {
+        ROUND_ROBIN, LEAST_LOADED;
+
+        public static Strategy of(String name) {
+            return "least-loaded".equalsIgnoreCase(name) ? LEAST_LOADED : ROUND_ROBIN;
+        }
+    }
+
+    public ConnectionRouter(Connection primary) {
+        this(primary, Collections.emptyList(), Strategy.ROUND_ROBIN, 0, 0);
+    }
+
+    public ConnectionRouter(Connection primary, List<String> replicaUrls, Strategy strategy,
+                            long retryMs, long readYourWritesMs) {
+        this.primary = primary;
+        this.strategy = strategy;
+        this.retryMs = retryMs;
+        this.readYourWritesMs = readYourWritesMs;
+
+        List<Replica> list = new ArrayList<>();
+        for (String url : replicaUrls)
+            list.add(new Replica(url));
+        this.replicas = Collections.unmodifiableList(list);
+
+        logger.info("Primary + реплик: " + replicas.size() + ", стратегия: " + strategy);
+    }
+
+    public static void bindSession(String sessionId) {
+        currentSession.set(sessionId);
+    }
+
+    public static void clearSession() {
+        currentSession.remove();
+    }
+
+    public <T> T write(SqlWork<T> work) throws SQLException {
+        try {
+            return work.apply(primary);
+        } finally {
+            if (readYourWritesMs > 0)
+                markWrite();
+        }
+    }
+
+    // Чтение, которому нужны гарантированно актуальные данные (без отставания реплик)
+    public <T> T readPrimary(SqlWork<T> work) throws SQLException {
+        return work.apply(primary);
+    }
+
+    public <T> T read(SqlWork<T> work) throws SQLException {
+        if (replicas.isEmpty() || recentlyWrote())
+            return work.apply(primary);
+
+        // Перебираем здоровые реплики, при сбое переходим к следующей, в конце - primary
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            Replica replica = choose();
+            if (replica == null)
+                break;
+
+            Connection conn;
+            try {
+                conn = replica.connection();
+            } catch (SQLException e) {
+                replica.markDown(e);
+                continue;
+            }
+
+            replica.inFlight.incrementAndGet();
+            try {
+                return work.apply(conn);
+            } catch (SQLException e) {
+                // Ошибка запроса не означает сбой реплики - проверяем само соединение
+                if (conn.isValid(1))
+                    throw e;
+                replica.markDown(e);
+            } finally {
+                replica.inFlight.decrementAndGet();
+            }
+        }
+
+        logger.warning("Нет доступных реплик, чтение с primary");
+        return work.apply(primary);
+    }
+
+    public void close() {
+        try {
+            primary.close();
+        } catch (SQLException e) {
+            logger.warning("Ошибка при закрытии соединения с primary: " + e.getMessage());
+        }
+        for (Replica replica : replicas)
+            replica.close();
+    }
+
+    // Эта сессия недавно писала - её чтения должны видеть свежие данные с primary
+    public boolean hasRecentWrite() {
+        return readYourWritesMs > 0 && recentlyWrote();
+    }
+
+    private Replica choose() {
+        long now = System.currentTimeMillis();
+
+        // Обход начинается каждый раз с другой реплики, поэтому при равной нагрузке
+        // (в том числе когда запросов в полёте нет) LEAST_LOADED тоже чередует реплики
+        int start = next.getAndIncrement();
+
+        if (strategy == Strategy.LEAST_LOADED) {
+            Replica best = null;
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica r = replicas.get(Math.floorMod(start + i, replicas.size()));
+                if (r.isUp(now) && (best == null || r.inFlight.get() < best.inFlight.get()))
+                    best = r;
+            }
+            return best;
+        }
+
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica r = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (r.isUp(now))
+                return r;
+        }
+        return null;
+    }
+
+    private void markWrite() {
+        // Без сессии запись не к чему привязать: следующий запрос придёт в другом потоке
+        String sessionId = currentSession.get();
+        if (sessionId == null)
+            return;
+
+        long now = System.currentTimeMillis();
+        lastWrite.put(sessionId, now);
+
+        // Не даём карте расти бесконечно: выбрасываем истёкшие отметки
+        if (lastWrite.size() > 10_000)
+            lastWrite.values().removeIf(t -> now - t > readYourWritesMs);
+    }
+
+    private boolean recentlyWrote() {
+        String sessionId = currentSession.get();
+        if (sessionId == null)
+            return false;
+        Long t = lastWrite.get(sessionId);
+        return t != null && System.currentTimeMillis() - t <= readYourWritesMs;
+    }
+
+    private class Replica {
+        private final String url;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile Connection conn;
+        private volatile long downUntil;
+
+        Replica(String url) {
+            this.url = url;
+        }
+
+        boolean isUp(long now) {
+            return now >= downUntil;
+        }
+
+        synchronized Connection connection() throws SQLException {
+            if (conn == null || conn.isClosed()) {
+                conn = DBConnection.getConnection(url);
+                logger.info("Подключена реплика: " + url);
+            }
+            return conn;
+        }
+
+        synchronized void markDown(SQLException e) {
+            logger.warning("Реплика " + url + " недоступна: " + e.getMessage());
+            downUntil = System.currentTimeMillis() + retryMs;
+            close();
+        }
+
+        synchronized void close() {
+            if (conn != null) {
+                try {
+                    conn.close();
+                } catch (SQLException ignored) {
+                }
+                conn = null;
+            }
+        }
+    }
+}
@@ -1,21 +1,67 @@
 package dao;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
 
 public class DBConnection {
     private static final String URL = "jdbc:mysql://localhost:3306/Restaurant";
     private static final String USER = "root";
     private static final String PASSWORD = "sokolovskaya";
 
+    // Настройки читаются из db.properties, любое значение можно переопределить через -Dключ=значение
+    private static final Properties config = loadConfig();
+
     public static Connection getConnection() throws SQLException {
-        try {
-            Class.forName("com.mysql.cj.jdbc.Driver");
-        } catch (ClassNotFoundException e) {
-            throw new RuntimeException("MySQL Driver not found", e);
+        return getConnection(get("db.url", URL));
+    }
+
+    public static Connection getConnection(String url) throws SQLException {
+        if (url.startsWith("jdbc:mysql:")) {
+            try {
+                Class.forName("com.mysql.cj.jdbc.Driver");
+            } catch (ClassNotFoundException e) {
+                throw new RuntimeException("MySQL Driver not found", e);
+            }
+        }
+        return DriverManager.getConnection(url, get("db.user", USER), get("db.password", PASSWORD));
+    }
+
+    // Маршрутизатор: запись и read-your-writes на primary, остальные чтения на реплики
+    public static ConnectionRouter createRouter() throws SQLException {
+        List<String> replicaUrls = new ArrayList<>();
+        for (String url : get("db.replica.urls", "").split(",")) {
+            if (!url.isBlank())
+                replicaUrls.add(url.trim());
+        }
+
+        return new ConnectionRouter(
+                getConnection(),
+                replicaUrls,
+                ConnectionRouter.Strategy.of(get("db.replica.strategy", "round-robin")),
+                Long.parseLong(get("db.replica.retryMs", "30000")),
+                Long.parseLong(get("db.readYourWritesMs", "5000"))
+        );
+    }
+
+    public static String get(String key, String defaultValue) {
+        return System.getProperty(key, config.getProperty(key, defaultValue));
+    }
+
+    private static Properties loadConfig() {
+        Properties props = new Properties();
+        try (InputStream in = DBConnection.class.getClassLoader().getResourceAsStream("db.properties")) {
+            if (in != null)
+                props.load(in);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        return props;
     }
 
 }
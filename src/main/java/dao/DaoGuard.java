@@ -0,0 +1,132 @@
+package dao;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Защита DAO от медленной БД: таймаут запроса на операцию, отдельный bulkhead
+// (ограничение одновременных запросов) и circuit breaker для каждой группы DAO.
+// Группы "auth" и "clients" не делят ресурсы, поэтому медленные запросы по
+// клиентам не блокируют авторизацию.
+public class DaoGuard {
+    private static final Map<String, DaoGuard> guards = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final Semaphore bulkhead;
+    // Потоки, ждущие чужой такой же запрос (SingleFlight), - отдельный бюджет той же группы
+    private final Semaphore waiters;
+    private final int maxConcurrent;
+    private final long waitMs;
+    private final CircuitBreaker breaker;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public interface GuardedCall<T> {
+        T call(int queryTimeoutSeconds) throws SQLException;
+    }
+
+    private DaoGuard(String name) {
+        this.name = name;
+        this.maxConcurrent = Integer.parseInt(setting("bulkhead", "maxConcurrent", "10"));
+        this.waitMs = Long.parseLong(setting("bulkhead", "waitMs", "100"));
+        this.bulkhead = new Semaphore(maxConcurrent);
+        this.waiters = new Semaphore(maxConcurrent);
+        this.breaker = new CircuitBreaker(name,
+                Integer.parseInt(setting("breaker", "window", "20")),
+                Integer.parseInt(setting("breaker", "failureRate", "50")),
+                Long.parseLong(setting("breaker", "slowMs", "2000")),
+                Long.parseLong(setting("breaker", "openMs", "10000")));
+
+        Metrics.register("dao." + name + ".breaker.state", () -> breaker.getState().name());
+        Metrics.register("dao." + name + ".breaker.failureRate", breaker::getFailureRate);
+        Metrics.register("dao." + name + ".bulkhead.inUse", () -> maxConcurrent - bulkhead.availablePermits());
+        Metrics.register("dao." + name + ".singleflight.waiting", () -> maxConcurrent - waiters.availablePermits());
+        Metrics.register("dao." + name + ".rejected", rejected::get);
+    }
+
+    public static DaoGuard named(String name) {
+        return guards.computeIfAbsent(name, DaoGuard::new);
+    }
+
+    public <T> T call(String operation, GuardedCall<T> work) throws SQLException {
+        long permit = breaker.tryAcquire();
+        if (permit == CircuitBreaker.REJECTED) {
+            rejected.incrementAndGet();
+            throw new ServiceUnavailableException("База данных недоступна (" + name + "), повторите позже",
+                    breaker.remainingOpenMs());
+        }
+
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire(waitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            breaker.cancel(permit);
+            rejected.incrementAndGet();
+            throw new ServiceUnavailableException("Слишком много запросов к БД (" + name + "), повторите позже", waitMs);
+        }
+
+        long start = System.currentTimeMillis();
+        boolean error = true;
+        try {
+            T result = work.call(timeout(operation));
+            error = false;
+            return result;
+        } catch (SQLException e) {
+            // Нарушение ограничений (класс 23, например дубликат ключа) - ошибка данных, а не сбой БД
+            if (e.getSQLState() != null && e.getSQLState().startsWith("23")) {
+                error = false;
+                throw e;
+            }
+            // Таймаут, обрыв соединения и прочие сбои - не "пустой результат", а 503
+            throw unavailable(operation, e);
+        } finally {
+            bulkhead.release();
+            breaker.onResult(permit, error, System.currentTimeMillis() - start);
+        }
+    }
+
+    // Запрос к БД не выполнен: вызывающий должен ответить 503, а не трактовать это как отсутствие данных
+    ServiceUnavailableException unavailable(String operation, SQLException e) {
+        return new ServiceUnavailableException("Ошибка БД (" + name + "." + operation + "): " + e.getMessage(),
+                Math.max(waitMs, breaker.remainingOpenMs()), e);
+    }
+
+    String getName() {
+        return name;
+    }
+
+    // Место для ожидания чужого запроса; при отказе поток не должен ждать
+    boolean tryStartWaiting() {
+        if (waiters.tryAcquire())
+            return true;
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    void stopWaiting() {
+        waiters.release();
+    }
+
+    // Дольше, чем собственный вызов (ожидание bulkhead + таймаут запроса), ждать чужой результат незачем
+    long maxWaitMs(String operation) {
+        return waitMs + timeout(operation) * 1000L;
+    }
+
+    // Таймаут в секундах: db.timeout.<группа>.<операция>, иначе db.timeout.default
+    private int timeout(String operation) {
+        return Integer.parseInt(DBConnection.get("db.timeout." + name + "." + operation,
+                DBConnection.get("db.timeout.default", "5")));
+    }
+
+    // Сначала db.<раздел>.<группа>.<ключ>, затем общий db.<раздел>.<ключ>
+    private String setting(String section, String key, String defaultValue) {
+        return DBConnection.get("db." + section + "." + name + "." + key,
+                DBConnection.get("db." + section + "." + key, defaultValue));
+    }
+}
@@ -0,0 +1,105 @@
+package dao;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Фильтр Блума по логинам. Ответ "нет" точный - такого логина в Users нет;
+// ответ "возможно" требует проверки в БД (ложные срабатывания с вероятностью ~fpp).
+public class LoginBloomFilter {
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+    private final AtomicInteger size = new AtomicInteger();
+
+    public LoginBloomFilter(int expectedLogins, double fpp) {
+        int n = Math.max(expectedLogins, 1);
+        long m = (long) Math.ceil(-n * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.min(Math.max(m, 64), Integer.MAX_VALUE - 63);
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + 63) / 64);
+    }
+
+    // Ключ должен быть не точнее сравнения в БД: если MySQL считает два логина равными,
+    // ключи обязаны совпасть, иначе фильтр ответит "нет" для существующего логина.
+    // Поэтому ключ намеренно грубее любого *_ci/*_ai_ci сопоставления:
+    // NFKD (полноширинные буквы, лигатуры) без диакритики и игнорируемых символов,
+    // нижний регистр, свёртка букв, которые UCA приравнивает к сочетаниям (ß = ss и т.п.).
+    // Хвостовые пробелы отбрасываются для PAD SPACE-сопоставлений вроде utf8mb4_general_ci
+    // (utf8mb4_0900_ai_ci - NO PAD, но лишние совпадения дают лишь ложные "возможно").
+    static String key(String login) {
+        String folded = Normalizer.normalize(login, Normalizer.Form.NFKD)
+                .replaceAll("[\\p{M}\\p{Cf}\\p{Cc}]", "")
+                .toLowerCase(Locale.ROOT);
+
+        StringBuilder key = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            switch (c) {
+                case 'ß' -> key.append("ss");
+                case 'æ' -> key.append("ae");
+                case 'œ' -> key.append("oe");
+                case 'þ' -> key.append("th");
+                case 'ø' -> key.append('o');
+                case 'đ', 'ð' -> key.append('d');
+                case 'ł' -> key.append('l');
+                case 'ħ' -> key.append('h');
+                case 'ŧ' -> key.append('t');
+                case 'ı' -> key.append('i');
+                default -> key.append(c);
+            }
+        }
+        return key.toString().stripTrailing();
+    }
+
+    public void add(String login) {
+        long hash = hash(login);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bitCount);
+            long mask = 1L << bit;
+            long word;
+            do {
+                word = bits.get(bit >>> 6);
+            } while ((word & mask) == 0 && !bits.compareAndSet(bit >>> 6, word, word | mask));
+        }
+        size.incrementAndGet();
+    }
+
+    public boolean mightContain(String login) {
+        long hash = hash(login);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            int bit = Math.floorMod(h1 + i * h2, bitCount);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    // Ожидаемая доля ложных срабатываний при текущем заполнении
+    public double falsePositiveRate() {
+        return Math.pow(1 - Math.exp(-(double) hashCount * size.get() / bitCount), hashCount);
+    }
+
+    private static long hash(String login) {
+        String key = key(login);
+
+        // FNV-1a 64 + финальное перемешивание, чтобы обе половины хеша были независимы
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,22 @@
+package dao;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+// Простейший реестр метрик: имя -> функция, возвращающая текущее значение.
+// Отдаётся наружу через MetricsServlet.
+public class Metrics {
+    private static final Map<String, Supplier<Object>> gauges = new ConcurrentHashMap<>();
+
+    public static void register(String name, Supplier<Object> gauge) {
+        gauges.put(name, gauge);
+    }
+
+    public static Map<String, Object> snapshot() {
+        Map<String, Object> values = new TreeMap<>();
+        gauges.forEach((name, gauge) -> values.put(name, gauge.get()));
+        return values;
+    }
+}
@@ -0,0 +1,79 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+// Проверка схемы при старте: первичные ключи Users и Clients и уникальный индекс
+// на Users.login, на котором держится атомарная регистрация. Схему приложение
+// не меняет - при нехватке индексов старт прерывается, миграция делается schema.sql.
+public class SchemaBootstrap {
+    private static final Logger logger = Logger.getLogger(SchemaBootstrap.class.getName());
+
+    // Имя уникального индекса на Users.login (в схеме из schema.sql - uq_users_login)
+    private static volatile String loginIndex = "uq_users_login";
+
+    public static void run(ConnectionRouter router) throws SQLException {
+        router.readPrimary(conn -> {
+            requirePrimaryKey(conn, "Users");
+            requirePrimaryKey(conn, "Clients");
+
+            String index = findUniqueIndex(conn, "Users", "login");
+            if (index == null) {
+                throw new SQLException("Нет уникального индекса на Users.login. Создайте его до запуска"
+                        + " (см. schema.sql; предварительно уберите повторяющиеся логины):"
+                        + " ALTER TABLE Users ADD CONSTRAINT uq_users_login UNIQUE (login)");
+            }
+            loginIndex = index;
+            logger.info("Схема БД проверена");
+            return null;
+        });
+    }
+
+    private static void requirePrimaryKey(Connection conn, String table) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        try (ResultSet rs = meta.getPrimaryKeys(conn.getCatalog(), null, identifier(meta, table))) {
+            if (!rs.next())
+                throw new SQLException("В таблице " + table + " нет первичного ключа");
+        }
+    }
+
+    public static String loginIndex() {
+        return loginIndex;
+    }
+
+    // Имя уникального индекса ровно по одной колонке column или null
+    private static String findUniqueIndex(Connection conn, String table, String column) throws SQLException {
+        DatabaseMetaData meta = conn.getMetaData();
+        Map<String, List<String>> indexes = new HashMap<>();
+        try (ResultSet rs = meta.getIndexInfo(conn.getCatalog(), null, identifier(meta, table), true, false)) {
+            while (rs.next()) {
+                String index = rs.getString("INDEX_NAME");
+                String col = rs.getString("COLUMN_NAME");
+                if (index != null && col != null)
+                    indexes.computeIfAbsent(index, k -> new ArrayList<>()).add(col);
+            }
+        }
+        for (Map.Entry<String, List<String>> index : indexes.entrySet()) {
+            List<String> columns = index.getValue();
+            if (columns.size() == 1 && columns.get(0).equalsIgnoreCase(column))
+                return index.getKey();
+        }
+        return null;
+    }
+
+    // Метаданные ищут имена в том регистре, в котором их хранит БД
+    private static String identifier(DatabaseMetaData meta, String name) throws SQLException {
+        if (meta.storesUpperCaseIdentifiers())
+            return name.toUpperCase();
+        if (meta.storesLowerCaseIdentifiers())
+            return name.toLowerCase();
+        return name;
+    }
+}
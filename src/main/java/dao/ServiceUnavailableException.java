@@ -0,0 +1,23 @@
+package dao;
+
+// БД временно недоступна: bulkhead переполнен, circuit breaker разомкнут
+// или запрос не выполнен (таймаут, обрыв соединения).
+// Сервлеты отвечают на неё кодом 503 с заголовком Retry-After.
+public class ServiceUnavailableException extends RuntimeException {
+    private final long retryAfterMs;
+
+    public ServiceUnavailableException(String message, long retryAfterMs) {
+        super(message);
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public ServiceUnavailableException(String message, long retryAfterMs, Throwable cause) {
+        super(message, cause);
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    // Через сколько секунд имеет смысл повторить запрос (не меньше 1)
+    public long getRetryAfterSeconds() {
+        return Math.max(1, (retryAfterMs + 999) / 1000);
+    }
+}
@@ -0,0 +1,83 @@
+package dao;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Объединение одновременных одинаковых чтений: первый поток выполняет запрос,
+// остальные с тем же ключом ждут его результат вместо своего запроса к БД.
+// Число ждущих потоков ограничено на всю группу DAO (как и bulkhead), а ждать
+// дольше, чем занял бы собственный вызов через DaoGuard, нельзя.
+public class SingleFlight<V> {
+    private final Map<String, Flight<V>> inFlight = new ConcurrentHashMap<>();
+    private final DaoGuard guard;
+    private final AtomicLong shared = new AtomicLong();
+
+    public interface Loader<V> {
+        V load() throws SQLException;
+    }
+
+    private static class Flight<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+    }
+
+    public SingleFlight(DaoGuard guard) {
+        this.guard = guard;
+        Metrics.register("dao." + guard.getName() + ".singleflight.inFlight", inFlight::size);
+        Metrics.register("dao." + guard.getName() + ".singleflight.shared", shared::get);
+    }
+
+    public V execute(String operation, String key, Loader<V> loader) throws SQLException {
+        Flight<V> mine = new Flight<>();
+        Flight<V> existing = inFlight.putIfAbsent(key, mine);
+        if (existing == null)
+            return lead(key, mine, loader);
+        return await(operation, existing);
+    }
+
+    private V lead(String key, Flight<V> flight, Loader<V> loader) throws SQLException {
+        try {
+            V value = loader.load();
+            flight.result.complete(value);
+            return value;
+        } catch (SQLException | RuntimeException e) {
+            flight.result.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+            if (!flight.result.isDone())
+                flight.result.completeExceptionally(new SQLException("Запрос прерван"));
+        }
+    }
+
+    private V await(String operation, Flight<V> flight) throws SQLException {
+        long timeoutMs = guard.maxWaitMs(operation);
+        if (!guard.tryStartWaiting())
+            throw new ServiceUnavailableException("Слишком много ожидающих запросов к БД, повторите позже", timeoutMs);
+
+        try {
+            V value = flight.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+            shared.incrementAndGet();
+            return value;
+        } catch (TimeoutException e) {
+            throw new ServiceUnavailableException("Превышено время ожидания ответа БД", timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceUnavailableException("Ожидание ответа БД прервано", timeoutMs);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException)
+                throw (SQLException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new SQLException(cause);
+        } finally {
+            guard.stopWaiting();
+        }
+    }
+}
@@ -2,89 +2,225 @@ package dao;
 
 import entity.User;
 import java.sql.*;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public class UserDAO {
-    private final Connection conn;
+    private final ConnectionRouter router;
+    private final DaoGuard guard = DaoGuard.named("auth");
+    private final SingleFlight<Optional<User>> logins = new SingleFlight<>(guard);
+    private final double loginFilterFpp = Double.parseDouble(DBConnection.get("db.loginFilter.fpp", "0.01"));
+    // null - фильтр ещё не построен, тогда проверяем всё через БД
+    private volatile LoginBloomFilter loginFilter;
+    // Фильтр, который сейчас перестраивается: новые логины добавляются и в него
+    private volatile LoginBloomFilter pendingFilter;
+    private ScheduledExecutorService loginFilterScheduler;
     private static final Logger logger = Logger.getLogger(UserDAO.class.getName());
 
     public UserDAO(Connection conn) {
-        this.conn = conn;
+        this(new ConnectionRouter(conn));
+    }
+
+    public UserDAO(ConnectionRouter router) {
+        this.router = router;
     }
 
     public void create(User user) throws SQLException {
         String sql = "INSERT INTO Users (login, password, role, full_name, email) VALUES (?, ?, ?, ?, ?)";
 
-        try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            ps.setString(1, user.getLogin());
-            ps.setString(2, user.getPassword());
-            ps.setString(3, user.getRole());
-            ps.setString(4, user.getFullName());
-            ps.setString(5, user.getEmail());
+        try {
+            guard.call("create", timeout -> router.write(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setQueryTimeout(timeout);
+                    ps.setString(1, user.getLogin());
+                    ps.setString(2, user.getPassword());
+                    ps.setString(3, user.getRole());
+                    ps.setString(4, user.getFullName());
+                    ps.setString(5, user.getEmail());
 
-            int affectedRows = ps.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Создание пользователя не удалось, ни одна запись не добавлена.");
-            }
+                    int affectedRows = ps.executeUpdate();
+                    if (affectedRows == 0) {
+                        throw new SQLException("Создание пользователя не удалось, ни одна запись не добавлена.");
+                    }
 
-            try (ResultSet rs = ps.getGeneratedKeys()) {
-                if (rs.next()) {
-                    user.setId(rs.getInt(1));
-                    logger.info("Создан пользователь с ID: " + user.getId());
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        if (rs.next()) {
+                            user.setId(rs.getInt(1));
+                            logger.info("Создан пользователь с ID: " + user.getId());
+                        }
+                    }
                 }
-            }
+                return null;
+            }));
+        } catch (SQLException e) {
+            if (!isDuplicateKey(e))
+                logger.severe("Ошибка при создании пользователя: " + e.getMessage());
+            throw e;
+        }
+
+        // Порядок важен: сначала перестраиваемый фильтр, затем текущий,
+        // иначе логин может потеряться при подмене фильтра
+        LoginBloomFilter pending = pendingFilter;
+        if (pending != null)
+            pending.add(user.getLogin());
+        LoginBloomFilter filter = loginFilter;
+        if (filter != null)
+            filter.add(user.getLogin());
+    }
+
+    // Регистрация за один запрос: дубликат отсекает уникальный индекс на Users.login.
+    // Возвращает false, если такой логин уже есть.
+    public boolean createIfAbsent(User user) throws SQLException {
+        try {
+            create(user);
+            return true;
         } catch (SQLException e) {
-            logger.severe("Ошибка при создании пользователя: " + e.getMessage());
+            if (isDuplicateKey(e) && violatesLoginIndex(e))
+                return false;
             throw e;
         }
     }
 
+    // 1062 - ER_DUP_ENTRY в MySQL, 23505 - стандартный SQLSTATE нарушения уникальности
+    public static boolean isDuplicateKey(SQLException e) {
+        return e.getErrorCode() == 1062 || "23505".equals(e.getSQLState());
+    }
+
+    // Нарушен именно индекс на login, а не другой уникальный ключ (например, email).
+    // MySQL: "Duplicate entry 'x' for key 'Users.uq_users_login'", H2 называет индекс в тексте ошибки.
+    private static boolean violatesLoginIndex(SQLException e) {
+        String message = e.getMessage() != null ? e.getMessage().toLowerCase(Locale.ROOT) : "";
+        int forKey = message.lastIndexOf("for key '");
+        String key = forKey >= 0 ? message.substring(forKey + "for key '".length()) : message;
+        return key.contains(SchemaBootstrap.loginIndex().toLowerCase(Locale.ROOT));
+    }
+
+    // false - логина точно нет в Users, запрос к БД не нужен
+    public boolean mightExist(String login) {
+        LoginBloomFilter filter = loginFilter;
+        return login == null || filter == null || filter.mightContain(login);
+    }
+
+    // Строит фильтр логинов и перестраивает его каждые db.loginFilter.rebuildMs
+    public void startLoginFilter() {
+        Metrics.register("auth.loginFilter.fpp", () -> loginFilterFpp);
+        Metrics.register("auth.loginFilter.estimatedFpp", () -> {
+            LoginBloomFilter filter = loginFilter;
+            return filter != null ? filter.falsePositiveRate() : null;
+        });
+
+        rebuildLoginFilter();
+
+        long rebuildMs = Long.parseLong(DBConnection.get("db.loginFilter.rebuildMs", "600000"));
+        loginFilterScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "login-filter-rebuild");
+            t.setDaemon(true);
+            return t;
+        });
+        loginFilterScheduler.scheduleWithFixedDelay(this::rebuildLoginFilter, rebuildMs, rebuildMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Останавливает перестройку фильтра и закрывает соединения (вызывается при остановке приложения)
+    public void close() {
+        if (loginFilterScheduler != null)
+            loginFilterScheduler.shutdownNow();
+        router.close();
+    }
+
+    public void rebuildLoginFilter() {
+        String countSql = "SELECT COUNT(*) FROM Users";
+        String sql = "SELECT login FROM Users";
+        try {
+            // Читаем с primary, чтобы не потерять логины, ещё не дошедшие до реплик
+            int count = router.readPrimary(conn -> {
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery(countSql)) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            });
+
+            // Запас по размеру, чтобы фильтр не переполнялся до следующей перестройки
+            LoginBloomFilter filter = new LoginBloomFilter(Math.max(count * 2, 1024), loginFilterFpp);
+            pendingFilter = filter;
+            router.readPrimary(conn -> {
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery(sql)) {
+                    while (rs.next())
+                        filter.add(rs.getString(1));
+                }
+                return null;
+            });
+
+            loginFilter = filter;
+            logger.info("Фильтр логинов перестроен, логинов: " + count);
+        } catch (Exception e) {
+            logger.warning("Не удалось перестроить фильтр логинов: " + e.getMessage());
+        } finally {
+            pendingFilter = null;
+        }
+    }
+
     public Optional<User> findByLogin(String login) {
         String sql = "SELECT * FROM Users WHERE login = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setString(1, login);
-            ResultSet rs = ps.executeQuery();
-
-            if (rs.next()) {
-                User user = new User(
-                        rs.getInt("id"),
-                        rs.getString("login"),
-                        rs.getString("password"),
-                        rs.getString("role"),
-                        rs.getString("full_name"),
-                        rs.getString("email")
-                );
-                return Optional.of(user);
+        // Логин ищется на primary: /auth/register работает без сессии, и вход сразу после
+        // регистрации не должен попасть на отстающую реплику
+        SingleFlight.Loader<Optional<User>> loader = () -> guard.call("findByLogin", timeout -> router.readPrimary(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setQueryTimeout(timeout);
+                ps.setString(1, login);
+                ResultSet rs = ps.executeQuery();
+
+                if (rs.next()) {
+                    return Optional.of(mapUser(rs));
+                }
             }
+            return Optional.<User>empty();
+        }));
+
+        try {
+            return router.hasRecentWrite() ? loader.load() : logins.execute("findByLogin", "login:" + login, loader);
         } catch (SQLException e) {
             logger.severe("Ошибка при поиске пользователя по логину: " + e.getMessage());
-            e.printStackTrace();
+            throw guard.unavailable("findByLogin", e);
         }
-        return Optional.empty();
     }
 
     public Optional<User> findById(int id) {
         String sql = "SELECT * FROM Users WHERE id = ?";
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            ps.setInt(1, id);
-            ResultSet rs = ps.executeQuery();
-
-            if (rs.next()) {
-                User user = new User(
-                        rs.getInt("id"),
-                        rs.getString("login"),
-                        rs.getString("password"),
-                        rs.getString("role"),
-                        rs.getString("full_name"),
-                        rs.getString("email")
-                );
-                return Optional.of(user);
-            }
+        // По id проверяется сессия (/auth/check), и пустой ответ её завершает - поэтому тоже primary:
+        // иначе пользователь, только что зарегистрированный без сессии, вылетит на отстающей реплике
+        try {
+            return guard.call("findById", timeout -> router.readPrimary(conn -> {
+                try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                    ps.setQueryTimeout(timeout);
+                    ps.setInt(1, id);
+                    ResultSet rs = ps.executeQuery();
+
+                    if (rs.next()) {
+                        return Optional.of(mapUser(rs));
+                    }
+                }
+                return Optional.<User>empty();
+            }));
         } catch (SQLException e) {
+            // Optional.empty() завершает сессию в checkAuth - сбой БД так трактовать нельзя
             logger.severe("Ошибка при поиске пользователя по ID: " + e.getMessage());
-            e.printStackTrace();
+            throw guard.unavailable("findById", e);
         }
-        return Optional.empty();
+    }
+
+    private static User mapUser(ResultSet rs) throws SQLException {
+        return new User(
+                rs.getInt("id"),
+                rs.getString("login"),
+                rs.getString("password"),
+                rs.getString("role"),
+                rs.getString("full_name"),
+                rs.getString("email")
+        );
     }
 }
\ No newline at end of file
@@ -1,7 +1,7 @@
 package org.example.servlets;
 
+import dao.ConnectionRouter;
 import jakarta.servlet.*;
-import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
@@ -9,7 +9,7 @@ import jakarta.servlet.http.HttpSession;
 import java.io.IOException;
 import java.util.logging.Logger;
 
-@WebFilter("/*")
+// Подключается в web.xml - после ResponseCacheFilter
 public class AuthFilter implements Filter {
     private static final Logger logger = Logger.getLogger(AuthFilter.class.getName());
 
@@ -49,7 +49,14 @@ public class AuthFilter implements Filter {
             }
             // Авторизованные - ВСЕ виды запросов (без дополнительных ограничений)
         }
-        chain.doFilter(request, response);
+
+        // Привязываем сессию к потоку, чтобы чтение после записи шло на primary
+        ConnectionRouter.bindSession(session != null ? session.getId() : null);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ConnectionRouter.clearSession();
+        }
     }
 
     private boolean isProtectedPath(String path, String method) {
@@ -1,12 +1,14 @@
 package org.example.servlets;
 
 import com.google.gson.Gson;
+import dao.ConnectionRouter;
+import dao.SchemaBootstrap;
 import dao.UserDAO;
 import dao.DBConnection;
+import dao.ServiceUnavailableException;
 import entity.User;
 import jakarta.servlet.http.HttpSession;
 
-import java.sql.Connection;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
@@ -24,9 +26,11 @@ public class AuthService {
     public AuthService() {
         gson = new Gson();
         try {
-            Connection conn = DBConnection.getConnection();
-            userDAO = new UserDAO(conn);
+            ConnectionRouter router = DBConnection.createRouter();
+            SchemaBootstrap.run(router);
+            userDAO = new UserDAO(router);
             createTestUsers();
+            userDAO.startLoginFilter();
 
             logger.info("AuthService успешно инициализирован с подключением к БД");
         } catch (Exception e) {
@@ -37,25 +41,23 @@ public class AuthService {
 
     private void createTestUsers() {
         try {
-            if (userDAO.findByLogin("admin").isEmpty()) {
-                User admin = new User();
-                admin.setLogin("admin");
-                admin.setPassword("admin123");
-                admin.setRole("admin");
-                admin.setFullName("Администратор");
-                admin.setEmail("admin@example.com");
-                userDAO.create(admin);
+            User admin = new User();
+            admin.setLogin("admin");
+            admin.setPassword("admin123");
+            admin.setRole("admin");
+            admin.setFullName("Администратор");
+            admin.setEmail("admin@example.com");
+            if (userDAO.createIfAbsent(admin)) {
                 logger.info("Создан тестовый администратор: admin/admin123");
             }
 
-            if (userDAO.findByLogin("user").isEmpty()) {
-                User user = new User();
-                user.setLogin("user");
-                user.setPassword("user123");
-                user.setRole("user");
-                user.setFullName("Обычный пользователь");
-                user.setEmail("user@example.com");
-                userDAO.create(user);
+            User user = new User();
+            user.setLogin("user");
+            user.setPassword("user123");
+            user.setRole("user");
+            user.setFullName("Обычный пользователь");
+            user.setEmail("user@example.com");
+            if (userDAO.createIfAbsent(user)) {
                 logger.info("Создан тестовый пользователь: user/user123");
             }
 
@@ -64,16 +66,14 @@ public class AuthService {
         }
     }
 
+    public void close() {
+        userDAO.close();
+    }
+
     public String register(String login, String password, String fullName, String email) {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            if (userDAO.findByLogin(login).isPresent()) {
-                response.put("success", false);
-                response.put("message", "Пользователь с таким логином уже существует");
-                return gson.toJson(response);
-            }
-
             User user = new User();
             user.setLogin(login);
             user.setPassword(password);
@@ -81,13 +81,20 @@ public class AuthService {
             user.setFullName(fullName);
             user.setEmail(email);
 
-            userDAO.create(user);
+            // Один INSERT: дубликат отсекает уникальный индекс, гонки между регистрациями нет
+            if (!userDAO.createIfAbsent(user)) {
+                response.put("success", false);
+                response.put("message", "Пользователь с таким логином уже существует");
+                return gson.toJson(response);
+            }
 
             response.put("success", true);
             response.put("message", "Регистрация успешна");
 
             logger.info("Зарегистрирован новый пользователь: " + login);
 
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             response.put("success", false);
@@ -101,7 +108,8 @@ public class AuthService {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            Optional<User> userOpt = userDAO.findByLogin(login);
+            // Несуществующие логины (опечатки, боты) отсекаются без запроса к БД
+            Optional<User> userOpt = userDAO.mightExist(login) ? userDAO.findByLogin(login) : Optional.empty();
             if (userOpt.isPresent()) {
                 User user = userOpt.get();
 
@@ -133,6 +141,8 @@ public class AuthService {
                 response.put("success", false);
                 response.put("message", "Пользователь не найден");
             }
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             response.put("success", false);
@@ -197,6 +207,8 @@ public class AuthService {
             } else {
                 response.put("authenticated", false);
             }
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             response.put("authenticated", false);
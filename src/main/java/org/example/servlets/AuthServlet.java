@@ -2,7 +2,6 @@ package org.example.servlets;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
@@ -11,7 +10,7 @@ import java.io.IOException;
 
 
 @WebServlet("/auth/*")
-public class AuthServlet extends HttpServlet {
+public class AuthServlet extends GuardedServlet {
     private AuthService authService;
 
     @Override
@@ -19,6 +18,12 @@ public class AuthServlet extends HttpServlet {
         authService = new AuthService();
     }
 
+    @Override
+    public void destroy() {
+        // Останавливаем фоновую перестройку фильтра логинов, иначе поток переживёт редеплой
+        authService.close();
+    }
+
     @Override
     protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
         String pathInfo = req.getPathInfo();
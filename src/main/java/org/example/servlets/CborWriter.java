@@ -0,0 +1,81 @@
+package org.example.servlets;
+
+import entity.Client;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// Минимальный кодировщик CBOR (RFC 8949), пишет сразу в поток ответа.
+// Поддерживает только то, что нужно для клиентов: массивы, карты, целые и строки.
+public class CborWriter {
+    private static final int UNSIGNED = 0;
+    private static final int NEGATIVE = 1;
+    private static final int TEXT = 3;
+    private static final int ARRAY = 4;
+    private static final int MAP = 5;
+
+    private final OutputStream out;
+
+    public CborWriter(OutputStream out) {
+        this.out = out;
+    }
+
+    // Поля и их имена совпадают с JSON от Gson, null-поля так же пропускаются
+    public void writeClient(Client client) throws IOException {
+        int size = 1 + (client.getFullName() != null ? 1 : 0) + (client.getContacts() != null ? 1 : 0);
+        writeHeader(MAP, size);
+        writeString("id");
+        writeInt(client.getId());
+        if (client.getFullName() != null) {
+            writeString("fullName");
+            writeString(client.getFullName());
+        }
+        if (client.getContacts() != null) {
+            writeString("contacts");
+            writeString(client.getContacts());
+        }
+    }
+
+    public void writeClients(List<Client> clients) throws IOException {
+        writeHeader(ARRAY, clients.size());
+        for (Client client : clients)
+            writeClient(client);
+    }
+
+    public void writeInt(long value) throws IOException {
+        if (value >= 0)
+            writeHeader(UNSIGNED, value);
+        else
+            writeHeader(NEGATIVE, -1 - value);
+    }
+
+    public void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeHeader(TEXT, bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeHeader(int majorType, long length) throws IOException {
+        int type = majorType << 5;
+        if (length < 24) {
+            out.write(type | (int) length);
+        } else if (length < 0x100) {
+            out.write(type | 24);
+            out.write((int) length);
+        } else if (length < 0x10000) {
+            out.write(type | 25);
+            out.write((int) (length >> 8));
+            out.write((int) length);
+        } else if (length < 0x100000000L) {
+            out.write(type | 26);
+            for (int shift = 24; shift >= 0; shift -= 8)
+                out.write((int) (length >> shift));
+        } else {
+            out.write(type | 27);
+            for (int shift = 56; shift >= 0; shift -= 8)
+                out.write((int) (length >> shift));
+        }
+    }
+}
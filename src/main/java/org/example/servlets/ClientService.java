@@ -2,10 +2,14 @@ package org.example.servlets;
 
 import com.google.gson.Gson;
 import dao.ClientDAO;
+import dao.ConnectionRouter;
 import dao.DBConnection;
+import dao.ServiceUnavailableException;
 import entity.Client;
 
-import java.sql.Connection;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 public class ClientService {
@@ -15,8 +19,8 @@ public class ClientService {
     public ClientService() {
         gson = new Gson();
         try {
-            Connection conn = DBConnection.getConnection();
-            clientDAO = new ClientDAO(conn);
+            ConnectionRouter router = DBConnection.createRouter();
+            clientDAO = new ClientDAO(router);
         } catch (Exception e) {
             e.printStackTrace();
             throw new RuntimeException("Ошибка инициализации ClientService: " + e.getMessage());
@@ -33,6 +37,31 @@ public class ClientService {
         return gson.toJson(client);
     }
 
+    // Тело ответа на GET /clients (id == null) или /clients/{id}; null - клиента с таким id нет.
+    // Через него отвечает ClientServlet и обновляется ResponseCacheFilter, поэтому ответы совпадают.
+    // Сбой БД сюда не доходит как пустые данные: DAO бросает ServiceUnavailableException.
+    public byte[] renderGet(Integer id, String mediaType) throws IOException {
+        Client client = null;
+        List<Client> clients = null;
+        if (id != null) {
+            client = clientDAO.read(id);
+            if (client == null) return null;
+        } else {
+            clients = clientDAO.getAll();
+        }
+
+        if (ClientServlet.CBOR.equals(mediaType)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            CborWriter writer = new CborWriter(out);
+            if (client != null)
+                writer.writeClient(client);
+            else
+                writer.writeClients(clients);
+            return out.toByteArray();
+        }
+        return gson.toJson(client != null ? client : clients).getBytes(StandardCharsets.UTF_8);
+    }
+
     public boolean createClient(String fullName, String contacts) {
         try {
             Client client = new Client();
@@ -40,6 +69,8 @@ public class ClientService {
             client.setContacts(contacts);
             clientDAO.create(client);
             return true;
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -48,12 +79,12 @@ public class ClientService {
 
     public boolean updateClient(int id, String fullName, String contacts) {
         try {
-            Client client = clientDAO.read(id);
-            if (client == null) return false;
-            client.setFullName(fullName);
-            client.setContacts(contacts);
-            clientDAO.update(client);
+            // Прочитанный объект может быть общим для нескольких запросов - не изменяем его
+            if (clientDAO.read(id) == null) return false;
+            clientDAO.update(new Client(id, fullName, contacts));
             return true;
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
@@ -64,6 +95,8 @@ public class ClientService {
         try {
             clientDAO.delete(id);
             return true;
+        } catch (ServiceUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             e.printStackTrace();
             return false;
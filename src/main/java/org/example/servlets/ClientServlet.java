@@ -2,46 +2,100 @@ package org.example.servlets;
 
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
-import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.util.Locale;
 
 @WebServlet("/clients/*")
-public class ClientServlet extends HttpServlet {
+public class ClientServlet extends GuardedServlet {
+    static final String JSON = "application/json";
+    static final String CBOR = "application/cbor";
+
     private ClientService clientService;
 
     @Override
     public void init() throws ServletException {
         clientService = new ClientService();
+        // ResponseCacheFilter обновляет устаревшие записи через тот же сервис
+        getServletContext().setAttribute(ClientService.class.getName(), clientService);
     }
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
-        String pathInfo = req.getPathInfo();
-        String json;
-
-        if (pathInfo != null && pathInfo.length() > 1) {
-            try {
-                String idStr = pathInfo.substring(1);
-                int id = Integer.parseInt(idStr);
-                json = clientService.getClientById(id);
-
-                if (json == null || json.isEmpty() || "null".equals(json)) {
-                    resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Client with id " + id + " not found");
-                    return;
+        String mediaType = negotiate(req.getHeader("Accept"));
+        resp.setHeader("Vary", "Accept");
+
+        Integer id;
+        try {
+            id = idOf(req.getPathInfo());
+        } catch (NumberFormatException e) {
+            resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid id format");
+            return;
+        }
+
+        byte[] body = clientService.renderGet(id, mediaType);
+        if (body == null) {
+            resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Client with id " + id + " not found");
+            return;
+        }
+
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType(CBOR.equals(mediaType) ? CBOR : JSON + ";charset=UTF-8");
+        resp.setContentLength(body.length);
+        resp.getOutputStream().write(body);
+    }
+
+    // id из /clients/{id}; null - запрошен весь список
+    static Integer idOf(String pathInfo) {
+        if (pathInfo == null || pathInfo.length() <= 1)
+            return null;
+        return Integer.parseInt(pathInfo.substring(1));
+    }
+
+    // Выбор формата по заголовку Accept: CBOR только если клиент явно предпочёл его JSON.
+    // При равном q точный тип важнее маски ("application/cbor, */*" -> CBOR),
+    // при полном равенстве остаётся JSON
+    static String negotiate(String accept) {
+        if (accept == null)
+            return JSON;
+
+        String best = JSON;
+        double bestQ = 0;
+        int bestRank = -1;
+        for (String part : accept.split(",")) {
+            String[] params = part.trim().split(";");
+            String type = params[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1;
+            for (int i = 1; i < params.length; i++) {
+                String[] param = params[i].split("=", 2);
+                if (param.length == 2 && "q".equalsIgnoreCase(param[0].trim())) {
+                    try {
+                        q = Double.parseDouble(param[1].trim());
+                    } catch (NumberFormatException ignored) {
+                    }
                 }
+            }
 
-            } catch (NumberFormatException e) {
-                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid id format");
-                return;
+            int rank = (CBOR.equals(type) || JSON.equals(type)) ? 2
+                    : "application/*".equals(type) ? 1
+                    : "*/*".equals(type) ? 0
+                    : -1;
+            if (rank < 0 || q <= 0)
+                continue;
+
+            String candidate = CBOR.equals(type) ? CBOR : JSON;
+            boolean better = q > bestQ
+                    || (q == bestQ && rank > bestRank)
+                    || (q == bestQ && rank == bestRank && JSON.equals(candidate));
+            if (better) {
+                best = candidate;
+                bestQ = q;
+                bestRank = rank;
             }
-        } else {
-            json = clientService.getAllClients();
         }
-        outputResponse(resp, json, HttpServletResponse.SC_OK);
+        return best;
     }
 
     @Override
@@ -50,6 +104,7 @@ public class ClientServlet extends HttpServlet {
         String contacts = req.getParameter("contacts");
 
         boolean res = clientService.createClient(fullName, contacts);
+        if (res) ResponseCacheFilter.invalidate();
         resp.setStatus(res ? HttpServletResponse.SC_OK : HttpServletResponse.SC_BAD_REQUEST);
     }
 
@@ -67,6 +122,7 @@ public class ClientServlet extends HttpServlet {
         try {
             int id = Integer.parseInt(idParam);
             boolean res = clientService.updateClient(id, fullName, contacts);
+            if (res) ResponseCacheFilter.invalidate();
             resp.setStatus(res ? HttpServletResponse.SC_OK : HttpServletResponse.SC_BAD_REQUEST);
         } catch (NumberFormatException e) {
             resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid id");
@@ -85,18 +141,10 @@ public class ClientServlet extends HttpServlet {
         try {
             int id = Integer.parseInt(idParam);
             boolean res = clientService.deleteClient(id);
+            if (res) ResponseCacheFilter.invalidate();
             resp.setStatus(res ? HttpServletResponse.SC_OK : HttpServletResponse.SC_BAD_REQUEST);
         } catch (NumberFormatException e) {
             resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid id");
         }
     }
-
-    private void outputResponse(HttpServletResponse resp, String payload, int status) throws IOException {
-        resp.setStatus(status);
-        resp.setContentType("application/json");
-        try (PrintWriter out = resp.getWriter()) {
-            if (payload != null)
-                out.print(payload);
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package org.example.servlets;
+
+import dao.ServiceUnavailableException;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+// Базовый сервлет для обращающихся к БД: перегрузка или недоступность БД -> 503
+public abstract class GuardedServlet extends HttpServlet {
+
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        try {
+            super.service(req, resp);
+        } catch (ServiceUnavailableException e) {
+            // БД перегружена или недоступна - отвечаем сразу, не занимая поток
+            resp.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+            resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.servlets;
+
+import com.google.gson.Gson;
+import dao.Metrics;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+
+// Текущие значения метрик (состояние circuit breaker, bulkhead и т.д.) в JSON
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+    private final Gson gson = new Gson();
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+        resp.setStatus(HttpServletResponse.SC_OK);
+        resp.setContentType("application/json");
+        resp.getWriter().write(gson.toJson(Metrics.snapshot()));
+    }
+}
@@ -0,0 +1,251 @@
+package org.example.servlets;
+
+import dao.DBConnection;
+import dao.ServiceUnavailableException;
+import dao.Metrics;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+// Общий кеш готовых ответов для анонимных GET /clients.
+// Ответ для всех анонимных клиентов одинаковый, поэтому он отдаётся из памяти,
+// не доходя до AuthFilter, сервлета, DAO и Gson. Ключ - URI без параметров + выбранный формат (JSON/CBOR).
+// Свежая запись живёт ttlMs, после этого ещё staleMs отдаётся устаревшая версия,
+// а запись обновляется в фоновом потоке через ClientService (stale-while-revalidate).
+// Записи через ClientServlet сбрасывают кеш; пока реплики могут отставать от этой записи
+// (db.readYourWritesMs), ответы в кеш не сохраняются.
+public class ResponseCacheFilter implements Filter {
+    private static final Logger logger = Logger.getLogger(ResponseCacheFilter.class.getName());
+
+    private static final Map<String, Entry> cache = new ConcurrentHashMap<>();
+    // Растёт при каждой записи: ответ, начатый до неё, в кеш уже не попадёт
+    private static final AtomicLong generation = new AtomicLong();
+    private static volatile long lastInvalidation;
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong staleHits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+
+    private long ttlMs;
+    private long staleMs;
+    private int maxEntries;
+    private long replicaLagMs;
+    private ThreadPoolExecutor refresher;
+
+    private static class Entry {
+        final int status;
+        final String contentType;
+        final String characterEncoding;
+        final Map<String, String> headers;
+        final byte[] body;
+        final String pathInfo;
+        final String mediaType;
+        final long createdAt = System.currentTimeMillis();
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(CapturingResponseWrapper captured, String pathInfo, String mediaType) {
+            this.status = captured.getStatus();
+            this.contentType = captured.getContentType();
+            this.characterEncoding = captured.usedWriter() ? captured.getCharacterEncoding() : null;
+            this.headers = Map.copyOf(captured.getHeaders());
+            this.body = captured.getBody();
+            this.pathInfo = pathInfo;
+            this.mediaType = mediaType;
+        }
+
+        // Та же запись с новым телом
+        Entry(Entry old, byte[] body) {
+            this.status = old.status;
+            this.contentType = old.contentType;
+            this.characterEncoding = old.characterEncoding;
+            this.headers = old.headers;
+            this.body = body;
+            this.pathInfo = old.pathInfo;
+            this.mediaType = old.mediaType;
+        }
+    }
+
+    public static void invalidate() {
+        generation.incrementAndGet();
+        lastInvalidation = System.currentTimeMillis();
+        cache.clear();
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        ttlMs = Long.parseLong(param(filterConfig, "ttlMs", "2000"));
+        staleMs = Long.parseLong(param(filterConfig, "staleMs", "10000"));
+        maxEntries = Integer.parseInt(param(filterConfig, "maxEntries", "1000"));
+        // Без реплик отставания нет; с ними - столько же, сколько сессия после записи читает с primary
+        replicaLagMs = DBConnection.get("db.replica.urls", "").isBlank()
+                ? 0 : Long.parseLong(DBConnection.get("db.readYourWritesMs", "5000"));
+
+        // Один фоновый поток с ограниченной очередью: лишние обновления просто отбрасываются
+        refresher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(100), r -> {
+            Thread t = new Thread(r, "response-cache-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+
+        Metrics.register("cache.clients.entries", cache::size);
+        Metrics.register("cache.clients.hits", hits::get);
+        Metrics.register("cache.clients.staleHits", staleHits::get);
+        Metrics.register("cache.clients.misses", misses::get);
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+
+        // Кешируем только GET без cookie сессии - для них ответ не зависит от пользователя
+        if (!"GET".equals(httpRequest.getMethod()) || httpRequest.getRequestedSessionId() != null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        String key = key(httpRequest);
+        Entry entry = cache.get(key);
+        long age = entry != null ? System.currentTimeMillis() - entry.createdAt : Long.MAX_VALUE;
+
+        if (age < ttlMs) {
+            hits.incrementAndGet();
+            write(httpResponse, entry, "HIT");
+            return;
+        }
+
+        if (age < ttlMs + staleMs) {
+            staleHits.incrementAndGet();
+            write(httpResponse, entry, "STALE");
+            ClientService service = (ClientService) request.getServletContext()
+                    .getAttribute(ClientService.class.getName());
+            if (service != null && entry.refreshing.compareAndSet(false, true)) {
+                try {
+                    refresher.execute(() -> refresh(key, entry, service));
+                } catch (RejectedExecutionException e) {
+                    entry.refreshing.set(false);
+                }
+            }
+            return;
+        }
+
+        misses.incrementAndGet();
+        Entry fresh = fetch(key, httpRequest, httpResponse, chain);
+        if (fresh != null) {
+            write(httpResponse, fresh, "MISS");
+        }
+    }
+
+    // Проводит запрос через сервлет в память и сохраняет успешный ответ.
+    // Если ответ не кешируется, он всё равно возвращается - кроме ошибок, которые отправляются сразу.
+    private Entry fetch(String key, HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        long startGeneration = generation.get();
+        CapturingResponseWrapper captured = new CapturingResponseWrapper(response);
+        chain.doFilter(request, captured);
+
+        if (captured.isError()) {
+            if (!response.isCommitted()) {
+                captured.getHeaders().forEach(response::setHeader);
+                response.sendError(captured.getStatus(), captured.getErrorMessage());
+            }
+            return null;
+        }
+
+        // Сбой БД сюда не попадает: сервлет отвечает на него 503 через sendError (ветка выше),
+        // поэтому 200 - всегда настоящие данные, в том числе пустой список
+        Entry entry = new Entry(captured, request.getPathInfo(), ClientServlet.negotiate(request.getHeader("Accept")));
+        if (entry.status == HttpServletResponse.SC_OK && canStore(startGeneration)) {
+            if (!cache.containsKey(key))
+                makeRoom();
+            cache.put(key, entry);
+        }
+        return entry;
+    }
+
+    // Фоновое обновление устаревшей записи: тело строится тем же ClientService.renderGet, что и в сервлете
+    private void refresh(String key, Entry entry, ClientService service) {
+        long startGeneration = generation.get();
+        try {
+            byte[] body = service.renderGet(ClientServlet.idOf(entry.pathInfo), entry.mediaType);
+            if (!canStore(startGeneration))
+                return;
+            // null - БД ответила, что клиента нет; сбой БД сюда не доходит, это исключение ниже
+            if (body == null)
+                cache.remove(key, entry);
+            else
+                cache.replace(key, entry, new Entry(entry, body));
+        } catch (ServiceUnavailableException e) {
+            // БД недоступна или не ответила вовремя: оставляем устаревшую запись, следующая попытка - при следующем STALE
+            logger.warning("БД недоступна, кеш для " + key + " не обновлён: " + e.getMessage());
+        } catch (Exception e) {
+            logger.warning("Не удалось обновить кеш для " + key + ": " + e.getMessage());
+        } finally {
+            entry.refreshing.set(false);
+        }
+    }
+
+    // Не было записи с начала построения ответа, и реплики уже догнали последнюю запись
+    private boolean canStore(long startGeneration) {
+        return generation.get() == startGeneration
+                && System.currentTimeMillis() - lastInvalidation >= replicaLagMs;
+    }
+
+    // Перед добавлением нового ключа: убираем записи, которые уже нельзя отдать даже устаревшими,
+    // а если кеш всё равно полон - самую старую
+    private void makeRoom() {
+        if (cache.size() < maxEntries)
+            return;
+
+        long now = System.currentTimeMillis();
+        cache.values().removeIf(e -> now - e.createdAt >= ttlMs + staleMs);
+
+        while (cache.size() >= maxEntries && !cache.isEmpty()) {
+            cache.entrySet().stream()
+                    .min((a, b) -> Long.compare(a.getValue().createdAt, b.getValue().createdAt))
+                    .ifPresent(oldest -> cache.remove(oldest.getKey(), oldest.getValue()));
+        }
+    }
+
+    private static void write(HttpServletResponse response, Entry entry, String cacheStatus) throws IOException {
+        response.setStatus(entry.status);
+        if (entry.contentType != null)
+            response.setContentType(entry.contentType);
+        if (entry.characterEncoding != null)
+            response.setCharacterEncoding(entry.characterEncoding);
+        entry.headers.forEach(response::setHeader);
+        response.setHeader("X-Cache", cacheStatus);
+        response.setContentLength(entry.body.length);
+        response.getOutputStream().write(entry.body);
+        response.flushBuffer();
+    }
+
+    // Параметры запроса ClientServlet на GET не читает, поэтому в ключ они не входят:
+    // иначе ?x=1, ?x=2, ... заполнили бы кеш одинаковыми ответами
+    private static String key(HttpServletRequest request) {
+        return request.getRequestURI() + "|" + ClientServlet.negotiate(request.getHeader("Accept"));
+    }
+
+    private static String param(FilterConfig config, String name, String defaultValue) {
+        String value = config.getInitParameter(name);
+        return value != null ? value : defaultValue;
+    }
+
+    @Override
+    public void destroy() {
+        refresher.shutdownNow();
+    }
+}
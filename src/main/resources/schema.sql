@@ -0,0 +1,20 @@
+-- Схема БД Restaurant. Запускать один раз при развёртывании (приложение схему не меняет,
+-- SchemaBootstrap только проверяет её). Совместима с MySQL и H2 в режиме MODE=MySQL.
+CREATE TABLE IF NOT EXISTS Users (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    login VARCHAR(50) NOT NULL,
+    password VARCHAR(255) NOT NULL,
+    role VARCHAR(20) NOT NULL,
+    full_name VARCHAR(100),
+    email VARCHAR(100),
+    CONSTRAINT uq_users_login UNIQUE (login)
+);
+
+CREATE TABLE IF NOT EXISTS Clients (
+    id INT AUTO_INCREMENT PRIMARY KEY,
+    full_name VARCHAR(100),
+    contacts VARCHAR(255)
+);
+
+-- Для уже существующей таблицы Users без уникального индекса (сначала убрать дубликаты логинов):
+-- ALTER TABLE Users ADD CONSTRAINT uq_users_login UNIQUE (login);
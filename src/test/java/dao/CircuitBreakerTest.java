@@ -0,0 +1,97 @@
+package dao;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensOnceWindowReachesFailureRate() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 4, 50, 1000, 60_000);
+
+        call(breaker, false, 0);
+        call(breaker, false, 0);
+        call(breaker, true, 0);
+        // Окно ещё не заполнено - решения нет
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        call(breaker, true, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+        assertTrue(breaker.remainingOpenMs() > 0);
+    }
+
+    @Test
+    void slowCallsCountAsFailures() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, 50, 1000, 60_000);
+
+        call(breaker, false, 1000);
+        call(breaker, false, 1500);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void halfOpenLetsSingleProbeThroughAndClosesOnSuccess() {
+        CircuitBreaker breaker = opened();
+
+        long probe = breaker.tryAcquire();
+        assertNotEquals(CircuitBreaker.REJECTED, probe);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        breaker.onResult(probe, false, 0);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(0, breaker.getFailureRate());
+    }
+
+    @Test
+    void failedProbeOpensAgain() {
+        CircuitBreaker breaker = opened();
+
+        breaker.onResult(breaker.tryAcquire(), true, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void callStartedBeforeOpeningDoesNotDecideProbe() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, 50, 1000, 0);
+
+        long slow = breaker.tryAcquire();
+        call(breaker, true, 0);
+        call(breaker, true, 0);
+        long probe = breaker.tryAcquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // Медленный вызов из CLOSED завершился успешно, но проба ещё идёт
+        breaker.onResult(slow, false, 0);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+
+        breaker.onResult(probe, true, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void cancelledProbeFreesTheSlot() {
+        CircuitBreaker breaker = opened();
+
+        breaker.cancel(breaker.tryAcquire());
+        assertNotEquals(CircuitBreaker.REJECTED, breaker.tryAcquire());
+    }
+
+    // Разомкнутый breaker, у которого сразу можно взять пробу (openMs = 0)
+    private static CircuitBreaker opened() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 2, 50, 1000, 0);
+        call(breaker, true, 0);
+        call(breaker, true, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+
+    private static void call(CircuitBreaker breaker, boolean error, long elapsedMs) {
+        breaker.onResult(breaker.tryAcquire(), error, elapsedMs);
+    }
+}
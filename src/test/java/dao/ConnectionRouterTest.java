@@ -0,0 +1,161 @@
+package dao;
+
+import entity.Client;
+import entity.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Primary и реплики - отдельные встроенные БД H2 с одной схемой и разными данными,
+// поэтому по результату чтения видно, на какую БД ушёл запрос.
+class ConnectionRouterTest {
+    private static final AtomicInteger dbCounter = new AtomicInteger();
+    private static final String BROKEN_REPLICA = "jdbc:h2:tcp://localhost:1/missing";
+
+    @AfterEach
+    void clearSession() {
+        ConnectionRouter.clearSession();
+    }
+
+    @Test
+    void readsGoToReplicaAndWritesToPrimary() throws SQLException {
+        String primaryUrl = newDatabase("primary");
+        String replicaUrl = newDatabase("replica");
+        ClientDAO dao = new ClientDAO(router(primaryUrl, List.of(replicaUrl)));
+
+        assertEquals(List.of("replica"), names(dao.getAll()));
+
+        Client client = new Client();
+        client.setFullName("written");
+        dao.create(client);
+
+        assertEquals(List.of("primary", "written"), namesIn(primaryUrl));
+        assertEquals(List.of("replica"), namesIn(replicaUrl));
+    }
+
+    @Test
+    void sessionReadsItsOwnWritesFromPrimary() throws SQLException {
+        String primaryUrl = newDatabase("primary");
+        String replicaUrl = newDatabase("replica");
+        ClientDAO dao = new ClientDAO(router(primaryUrl, List.of(replicaUrl)));
+
+        ConnectionRouter.bindSession("writer");
+        Client client = new Client();
+        client.setFullName("written");
+        dao.create(client);
+        assertEquals(List.of("primary", "written"), names(dao.getAll()));
+
+        // Другая сессия и запросы без сессии по-прежнему читают с реплики
+        ConnectionRouter.bindSession("other");
+        assertEquals(List.of("replica"), names(dao.getAll()));
+        ConnectionRouter.clearSession();
+        assertEquals(List.of("replica"), names(dao.getAll()));
+    }
+
+    @Test
+    void userRegisteredWithoutSessionStaysLoggedIn() throws SQLException {
+        String primaryUrl = newDatabase("primary");
+        String replicaUrl = newDatabase("replica");
+        UserDAO dao = new UserDAO(router(primaryUrl, List.of(replicaUrl)));
+
+        // /auth/register - без сессии, запись не привязана к read-your-writes
+        User user = new User(0, "bob", "secret", "user", "Bob", "bob@example.com");
+        assertTrue(dao.createIfAbsent(user));
+
+        // /auth/login и затем /auth/check в новой сессии; реплика пользователя ещё не видела
+        ConnectionRouter.bindSession("new-session");
+        User loggedIn = dao.findByLogin("bob").orElseThrow();
+        assertTrue(dao.findById(loggedIn.getId()).isPresent());
+    }
+
+    @Test
+    void brokenReplicaFailsOverToNextReplica() throws SQLException {
+        String primaryUrl = newDatabase("primary");
+        String replicaUrl = newDatabase("replica");
+        ClientDAO dao = new ClientDAO(router(primaryUrl, List.of(BROKEN_REPLICA, replicaUrl)));
+
+        for (int i = 0; i < 4; i++)
+            assertEquals(List.of("replica"), names(dao.getAll()));
+    }
+
+    @Test
+    void allReplicasBrokenFailsOverToPrimary() throws SQLException {
+        String primaryUrl = newDatabase("primary");
+        ClientDAO dao = new ClientDAO(router(primaryUrl, List.of(BROKEN_REPLICA)));
+
+        assertEquals(List.of("primary"), names(dao.getAll()));
+    }
+
+    @Test
+    void leastLoadedSpreadsIdleReadsAcrossReplicas() throws SQLException {
+        String primaryUrl = newDatabase("primary");
+        String firstUrl = newDatabase("first");
+        String secondUrl = newDatabase("second");
+        ClientDAO dao = new ClientDAO(router(primaryUrl, List.of(firstUrl, secondUrl),
+                ConnectionRouter.Strategy.LEAST_LOADED));
+
+        // Запросы идут по одному, нагрузка на реплики всегда равна нулю
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < 4; i++)
+            seen.addAll(names(dao.getAll()));
+        assertEquals(Set.of("first", "second"), seen);
+    }
+
+    @Test
+    void leastLoadedSkipsBrokenReplica() throws SQLException {
+        String primaryUrl = newDatabase("primary");
+        String replicaUrl = newDatabase("replica");
+        ClientDAO dao = new ClientDAO(router(primaryUrl, List.of(BROKEN_REPLICA, replicaUrl),
+                ConnectionRouter.Strategy.LEAST_LOADED));
+
+        for (int i = 0; i < 4; i++)
+            assertEquals(List.of("replica"), names(dao.getAll()));
+    }
+
+    private static ConnectionRouter router(String primaryUrl, List<String> replicaUrls) throws SQLException {
+        return router(primaryUrl, replicaUrls, ConnectionRouter.Strategy.ROUND_ROBIN);
+    }
+
+    private static ConnectionRouter router(String primaryUrl, List<String> replicaUrls,
+                                           ConnectionRouter.Strategy strategy) throws SQLException {
+        return new ConnectionRouter(DBConnection.getConnection(primaryUrl), replicaUrls, strategy, 30_000, 5_000);
+    }
+
+    // Новая БД со схемой из schema.sql и одной строкой-меткой в Clients
+    private static String newDatabase(String marker) throws SQLException {
+        String url = "jdbc:h2:mem:" + marker + dbCounter.incrementAndGet()
+                + ";MODE=MySQL;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:schema.sql'";
+        try (Connection conn = DBConnection.getConnection(url);
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO Clients (full_name, contacts) VALUES ('" + marker + "', '')");
+        }
+        return url;
+    }
+
+    private static List<String> namesIn(String url) throws SQLException {
+        try (Connection conn = DBConnection.getConnection(url);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT full_name FROM Clients ORDER BY id")) {
+            List<String> result = new ArrayList<>();
+            while (rs.next())
+                result.add(rs.getString(1));
+            return result;
+        }
+    }
+
+    private static List<String> names(List<Client> clients) {
+        return clients.stream().map(Client::getFullName).toList();
+    }
+}
@@ -0,0 +1,108 @@
+package dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Каждый тест берёт свою группу: DaoGuard.named хранит группы на всё время работы JVM
+class DaoGuardTest {
+    private static final AtomicInteger groupCounter = new AtomicInteger();
+
+    @Test
+    void fullBulkheadRejectsWithoutCallingDatabase() throws Exception {
+        String group = newGroup();
+        System.setProperty("db.bulkhead." + group + ".maxConcurrent", "1");
+        System.setProperty("db.bulkhead." + group + ".waitMs", "0");
+        DaoGuard guard = DaoGuard.named(group);
+
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Object> busy = CompletableFuture.supplyAsync(() -> {
+            try {
+                return guard.call("read", timeout -> {
+                    entered.countDown();
+                    await(release);
+                    return "done";
+                });
+            } catch (SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        AtomicInteger calls = new AtomicInteger();
+        assertThrows(ServiceUnavailableException.class, () -> guard.call("read", timeout -> calls.incrementAndGet()));
+        assertEquals(0, calls.get());
+
+        release.countDown();
+        assertEquals("done", busy.get(5, TimeUnit.SECONDS));
+        assertEquals(1, (int) guard.call("read", timeout -> calls.incrementAndGet()));
+    }
+
+    @Test
+    void queryTimeoutBecomesServiceUnavailable() {
+        DaoGuard guard = DaoGuard.named(newGroup());
+
+        ServiceUnavailableException e = assertThrows(ServiceUnavailableException.class,
+                () -> guard.call("read", timeout -> {
+                    throw new SQLTimeoutException("Query timed out");
+                }));
+        assertInstanceOf(SQLTimeoutException.class, e.getCause());
+    }
+
+    @Test
+    void constraintViolationIsRethrownAndNotCountedAsFailure() {
+        String group = newGroup();
+        System.setProperty("db.breaker." + group + ".window", "2");
+        DaoGuard guard = DaoGuard.named(group);
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(SQLException.class, () -> guard.call("create", timeout -> {
+                throw new SQLException("Duplicate entry", "23000", 1062);
+            }));
+        }
+        assertEquals(0, (int) Metrics.snapshot().get("dao." + group + ".breaker.failureRate"));
+    }
+
+    @Test
+    void openBreakerRejectsWithRetryAfterUntilProbe() throws SQLException {
+        String group = newGroup();
+        System.setProperty("db.breaker." + group + ".window", "2");
+        System.setProperty("db.breaker." + group + ".openMs", "60000");
+        DaoGuard guard = DaoGuard.named(group);
+
+        for (int i = 0; i < 2; i++) {
+            assertThrows(ServiceUnavailableException.class, () -> guard.call("read", timeout -> {
+                throw new SQLException("Connection lost", "08S01");
+            }));
+        }
+
+        AtomicInteger calls = new AtomicInteger();
+        ServiceUnavailableException e = assertThrows(ServiceUnavailableException.class,
+                () -> guard.call("read", timeout -> calls.incrementAndGet()));
+        assertEquals(0, calls.get());
+        assertTrue(e.getRetryAfterSeconds() > 50);
+    }
+
+    private static void await(CountDownLatch latch) throws SQLException {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new SQLException(e);
+        }
+    }
+
+    private static String newGroup() {
+        return "guard-test-" + groupCounter.incrementAndGet();
+    }
+}
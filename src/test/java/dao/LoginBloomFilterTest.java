@@ -0,0 +1,29 @@
+package dao;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Фильтр не должен отвечать "нет" для логина, который MySQL (utf8mb4_0900_ai_ci) считает равным
+class LoginBloomFilterTest {
+
+    @Test
+    void keyFoldsWhatCollationTreatsAsEqual() {
+        assertEquals(LoginBloomFilter.key("strasse"), LoginBloomFilter.key("Straße"));
+        assertEquals(LoginBloomFilter.key("admin"), LoginBloomFilter.key("ＡＤＭＩＮ"));
+        assertEquals(LoginBloomFilter.key("file"), LoginBloomFilter.key("ﬁle"));
+        assertEquals(LoginBloomFilter.key("алена"), LoginBloomFilter.key("Алёна"));
+        assertEquals(LoginBloomFilter.key("aeon"), LoginBloomFilter.key("Æon"));
+    }
+
+    @Test
+    void noFalseMissesForEquivalentLogins() {
+        LoginBloomFilter filter = new LoginBloomFilter(100, 0.01);
+        filter.add("Straße");
+        filter.add("ＡＤＭＩＮ");
+
+        assertTrue(filter.mightContain("STRASSE"));
+        assertTrue(filter.mightContain("admin"));
+    }
+}
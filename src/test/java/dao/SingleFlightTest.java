@@ -0,0 +1,152 @@
+package dao;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Первый поток блокируется в Loader на защёлке, остальные успевают присоединиться к его запросу
+class SingleFlightTest {
+    private static final AtomicInteger groupCounter = new AtomicInteger();
+
+    private final ExecutorService pool = Executors.newCachedThreadPool();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        pool.shutdownNow();
+    }
+
+    @Test
+    void concurrentIdenticalReadsShareOneLoad() throws Exception {
+        String group = newGroup(16);
+        SingleFlight<String> flight = new SingleFlight<>(DaoGuard.named(group));
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 8; i++)
+            results.add(pool.submit(() -> flight.execute("read", "read:1", this::blockedLoad)));
+        awaitWaiting(group, 7);
+
+        release.countDown();
+        for (Future<String> result : results)
+            assertEquals("client 1", result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void differentKeysAreNotShared() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>(DaoGuard.named(newGroup(16)));
+        release.countDown();
+
+        assertEquals("client 1", flight.execute("read", "read:1", this::blockedLoad));
+        assertEquals("client 1", flight.execute("read", "read:2", this::blockedLoad));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void waitersBeyondGroupBudgetAreRejected() throws Exception {
+        String group = newGroup(2);
+        SingleFlight<String> flight = new SingleFlight<>(DaoGuard.named(group));
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            results.add(pool.submit(() -> flight.execute("read", "read:1", this::blockedLoad)));
+        awaitWaiting(group, 2);
+
+        // Лидер выполняет запрос, два места ожидания заняты - третьему ждать негде
+        assertThrows(ServiceUnavailableException.class, () -> flight.execute("read", "read:1", this::blockedLoad));
+
+        release.countDown();
+        for (Future<String> result : results)
+            assertEquals("client 1", result.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void waiterGivesUpAfterOwnCallBudget() throws Exception {
+        String group = newGroup(16);
+        System.setProperty("db.bulkhead." + group + ".waitMs", "0");
+        System.setProperty("db.timeout." + group + ".read", "1");
+        SingleFlight<String> flight = new SingleFlight<>(DaoGuard.named(group));
+
+        Future<String> leader = pool.submit(() -> flight.execute("read", "read:1", this::blockedLoad));
+        awaitLoads(1);
+
+        long start = System.currentTimeMillis();
+        assertThrows(ServiceUnavailableException.class, () -> flight.execute("read", "read:1", this::blockedLoad));
+        long waited = System.currentTimeMillis() - start;
+        assertTrue(waited >= 900 && waited < 5000, "waited " + waited + " ms");
+
+        release.countDown();
+        assertEquals("client 1", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void leaderFailureIsSharedWithWaiters() throws Exception {
+        String group = newGroup(16);
+        SingleFlight<String> flight = new SingleFlight<>(DaoGuard.named(group));
+        SingleFlight.Loader<String> failing = () -> {
+            blockedLoad();
+            throw new SQLException("Connection lost");
+        };
+
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++)
+            results.add(pool.submit(() -> flight.execute("read", "read:1", failing)));
+        awaitWaiting(group, 2);
+
+        release.countDown();
+        for (Future<String> result : results) {
+            Exception e = assertThrows(Exception.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof SQLException);
+        }
+        assertEquals(1, loads.get());
+    }
+
+    private String blockedLoad() throws SQLException {
+        loads.incrementAndGet();
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            throw new SQLException(e);
+        }
+        return "client 1";
+    }
+
+    private static void awaitWaiting(String group, int expected) throws InterruptedException {
+        awaitCondition(() -> ((Number) Metrics.snapshot().get("dao." + group + ".singleflight.waiting")).intValue() == expected);
+    }
+
+    private void awaitLoads(int expected) throws InterruptedException {
+        awaitCondition(() -> loads.get() == expected);
+    }
+
+    private static void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "не дождались потоков");
+            Thread.sleep(10);
+        }
+    }
+
+    private static String newGroup(int maxConcurrent) {
+        String group = "singleflight-test-" + groupCounter.incrementAndGet();
+        System.setProperty("db.bulkhead." + group + ".maxConcurrent", String.valueOf(maxConcurrent));
+        return group;
+    }
+}
@@ -0,0 +1,74 @@
+package dao;
+
+import entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserDAOTest {
+    private static final AtomicInteger dbCounter = new AtomicInteger();
+
+    @Test
+    void duplicateLoginIsReportedAsTaken() throws SQLException {
+        UserDAO dao = newUserDAO();
+
+        assertTrue(dao.createIfAbsent(user("bob", "bob@example.com")));
+        assertFalse(dao.createIfAbsent(user("bob", "other@example.com")));
+    }
+
+    @Test
+    void duplicateOfAnotherUniqueKeyIsNotReportedAsTakenLogin() throws SQLException {
+        UserDAO dao = newUserDAO();
+
+        assertTrue(dao.createIfAbsent(user("bob", "bob@example.com")));
+        assertThrows(SQLException.class, () -> dao.createIfAbsent(user("alice", "bob@example.com")));
+    }
+
+    @Test
+    void databaseFailureIsNotReportedAsMissingUser() throws SQLException {
+        Connection conn = DBConnection.getConnection(newDatabase());
+        UserDAO dao = new UserDAO(conn);
+        conn.close();
+
+        // Пустой Optional завершил бы сессию в /auth/check - вместо него 503
+        assertThrows(ServiceUnavailableException.class, () -> dao.findById(1));
+        assertThrows(ServiceUnavailableException.class, () -> dao.findByLogin("bob"));
+    }
+
+    @Test
+    void bootstrapFailsWithoutUniqueLoginIndex() throws SQLException {
+        Connection conn = DBConnection.getConnection(newDatabase());
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE Users DROP CONSTRAINT uq_users_login");
+        }
+
+        assertThrows(SQLException.class, () -> SchemaBootstrap.run(new ConnectionRouter(conn)));
+    }
+
+    // Схема из schema.sql плюс уникальный email, чтобы в Users было два уникальных ключа
+    private static UserDAO newUserDAO() throws SQLException {
+        Connection conn = DBConnection.getConnection(newDatabase());
+        try (Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("ALTER TABLE Users ADD CONSTRAINT uq_users_email UNIQUE (email)");
+        }
+        ConnectionRouter router = new ConnectionRouter(conn);
+        SchemaBootstrap.run(router);
+        return new UserDAO(router);
+    }
+
+    private static String newDatabase() {
+        return "jdbc:h2:mem:users" + dbCounter.incrementAndGet()
+                + ";MODE=MySQL;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:schema.sql'";
+    }
+
+    private static User user(String login, String email) {
+        return new User(0, login, "secret", "user", login, email);
+    }
+}
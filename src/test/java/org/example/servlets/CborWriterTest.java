@@ -0,0 +1,74 @@
+package org.example.servlets;
+
+import entity.Client;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Ожидаемые байты - из примеров RFC 8949, приложение A
+class CborWriterTest {
+
+    @Test
+    void integers() throws IOException {
+        assertEquals("00", hex(w -> w.writeInt(0)));
+        assertEquals("17", hex(w -> w.writeInt(23)));
+        assertEquals("1818", hex(w -> w.writeInt(24)));
+        assertEquals("1864", hex(w -> w.writeInt(100)));
+        assertEquals("1903e8", hex(w -> w.writeInt(1000)));
+        assertEquals("1a000f4240", hex(w -> w.writeInt(1000000)));
+        assertEquals("1b000000e8d4a51000", hex(w -> w.writeInt(1000000000000L)));
+        assertEquals("20", hex(w -> w.writeInt(-1)));
+        assertEquals("3863", hex(w -> w.writeInt(-100)));
+        assertEquals("3903e7", hex(w -> w.writeInt(-1000)));
+    }
+
+    @Test
+    void strings() throws IOException {
+        assertEquals("60", hex(w -> w.writeString("")));
+        assertEquals("6161", hex(w -> w.writeString("a")));
+        assertEquals("6449455446", hex(w -> w.writeString("IETF")));
+        assertEquals("62c3bc", hex(w -> w.writeString("ü")));
+        assertEquals("63e6b0b4", hex(w -> w.writeString("水")));
+        // Длина 24 и больше - в отдельном байте после заголовка
+        assertEquals("7818" + "61".repeat(24), hex(w -> w.writeString("a".repeat(24))));
+        assertEquals("790100" + "61".repeat(256), hex(w -> w.writeString("a".repeat(256))));
+    }
+
+    @Test
+    void clientListOmitsNullFields() throws IOException {
+        List<Client> clients = List.of(new Client(1, "Ann", null), new Client(500, null, "x"));
+
+        assertEquals("82"
+                        + "a2" + "626964" + "01" + "6866756c6c4e616d65" + "63416e6e"
+                        + "a2" + "626964" + "1901f4" + "68636f6e7461637473" + "6178",
+                hex(w -> w.writeClients(clients)));
+    }
+
+    @Test
+    void longClientList() throws IOException {
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < 24; i++)
+            clients.add(new Client(i, null, null));
+
+        String encoded = hex(w -> w.writeClients(clients));
+        assertTrue(encoded.startsWith("9818" + "a1" + "626964" + "00"));
+        assertTrue(encoded.endsWith("a1" + "626964" + "17"));
+    }
+
+    private interface Writes {
+        void to(CborWriter writer) throws IOException;
+    }
+
+    private static String hex(Writes writes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writes.to(new CborWriter(out));
+        return HexFormat.of().formatHex(out.toByteArray());
+    }
+}
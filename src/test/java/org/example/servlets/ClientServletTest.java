@@ -0,0 +1,44 @@
+package org.example.servlets;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.example.servlets.ClientServlet.CBOR;
+import static org.example.servlets.ClientServlet.JSON;
+import static org.example.servlets.ClientServlet.negotiate;
+
+class ClientServletTest {
+
+    @Test
+    void jsonByDefaultAndForWildcards() {
+        assertEquals(JSON, negotiate(null));
+        assertEquals(JSON, negotiate("*/*"));
+        assertEquals(JSON, negotiate("application/*"));
+        assertEquals(JSON, negotiate("text/html"));
+        assertEquals(JSON, negotiate("text/html, application/xhtml+xml, */*;q=0.8"));
+    }
+
+    @Test
+    void cborWhenAskedForExplicitly() {
+        assertEquals(CBOR, negotiate("application/cbor"));
+        assertEquals(CBOR, negotiate("APPLICATION/CBOR"));
+        assertEquals(CBOR, negotiate("application/cbor, */*"));
+        assertEquals(CBOR, negotiate("application/json;q=0.5, application/cbor"));
+        assertEquals(CBOR, negotiate("application/cbor; Q = 0.9, application/json; q=0.8"));
+    }
+
+    @Test
+    void zeroQualityExcludesType() {
+        assertEquals(JSON, negotiate("application/cbor;q=0"));
+        assertEquals(JSON, negotiate("application/cbor;q=0, */*"));
+        assertEquals(CBOR, negotiate("application/json;q=0, application/cbor;q=0.1"));
+    }
+
+    @Test
+    void tiesStayJson() {
+        assertEquals(JSON, negotiate("application/cbor, application/json"));
+        assertEquals(JSON, negotiate("application/json, application/cbor"));
+        assertEquals(JSON, negotiate("application/cbor;q=0.5, application/json;q=0.5"));
+        assertEquals(JSON, negotiate("application/cbor;q=0.5, */*;q=0.9"));
+    }
+}
@@ -0,0 +1,212 @@
+package org.example.servlets;
+
+import dao.DBConnection;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.FilterConfig;
+import jakarta.servlet.ServletConfig;
+import jakarta.servlet.ServletContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Фильтр и ClientServlet на встроенной H2; запросы и ответы - минимальные заглушки через Proxy.
+// Таблица Clients переименовывается, чтобы запросы к БД падали, как при сбое.
+class ResponseCacheFilterTest {
+    private static final AtomicInteger dbCounter = new AtomicInteger();
+
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final ServletContext context = (ServletContext) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{ServletContext.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "getAttribute" -> attributes.get((String) args[0]);
+                case "setAttribute" -> attributes.put((String) args[0], args[1]);
+                default -> null;
+            });
+
+    private Connection db;
+    private ResponseCacheFilter filter;
+    private FilterChain servlet;
+
+    private record Response(int status, String cache, String body) {
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String url = "jdbc:h2:mem:cache" + dbCounter.incrementAndGet()
+                + ";MODE=MySQL;DB_CLOSE_DELAY=-1;INIT=RUNSCRIPT FROM 'classpath:schema.sql'";
+        System.setProperty("db.url", url);
+        db = DBConnection.getConnection(url);
+        execute("INSERT INTO Clients (full_name, contacts) VALUES ('first', '')");
+
+        ClientServlet clientServlet = new ClientServlet();
+        clientServlet.init(servletConfig());
+        servlet = clientServlet::service;
+
+        ResponseCacheFilter.invalidate();
+        filter = new ResponseCacheFilter();
+        filter.init(filterConfig(Map.of("ttlMs", "50")));
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        filter.destroy();
+        db.close();
+        System.clearProperty("db.url");
+    }
+
+    @Test
+    void failedRefreshKeepsStaleEntries() throws Exception {
+        Response list = get("");
+        Response client = get("/1");
+        assertEquals(new Response(200, "MISS", "[{\"id\":1,\"fullName\":\"first\",\"contacts\":\"\"}]"), list);
+
+        execute("ALTER TABLE Clients RENAME TO Clients_down");
+        Thread.sleep(100);
+        // Каждый STALE запускает фоновое обновление; все они падают, а записи остаются прежними.
+        // Попыток немного, чтобы не разомкнуть общий circuit breaker группы "clients"
+        for (int i = 0; i < 3; i++) {
+            assertEquals(new Response(200, "STALE", list.body()), get(""));
+            assertEquals(new Response(200, "STALE", client.body()), get("/1"));
+            Thread.sleep(100);
+        }
+
+        execute("ALTER TABLE Clients_down RENAME TO Clients");
+        execute("INSERT INTO Clients (full_name, contacts) VALUES ('second', '')");
+        awaitBody("", "[{\"id\":1,\"fullName\":\"first\",\"contacts\":\"\"},{\"id\":2,\"fullName\":\"second\",\"contacts\":\"\"}]");
+    }
+
+    @Test
+    void failedMissIsNotCached() throws Exception {
+        execute("ALTER TABLE Clients RENAME TO Clients_down");
+        assertEquals(503, get("").status());
+
+        execute("ALTER TABLE Clients_down RENAME TO Clients");
+        assertEquals(new Response(200, "MISS", "[{\"id\":1,\"fullName\":\"first\",\"contacts\":\"\"}]"), get(""));
+    }
+
+    @Test
+    void refreshDropsEntryOfDeletedClient() throws Exception {
+        assertEquals(200, get("/1").status());
+
+        execute("DELETE FROM Clients WHERE id = 1");
+        Thread.sleep(100);
+        get("/1");
+        for (long end = System.currentTimeMillis() + 5000; get("/1").status() != 404; Thread.sleep(20)) {
+            if (System.currentTimeMillis() > end)
+                throw new AssertionError("запись удалённого клиента не убрана из кеша");
+        }
+    }
+
+    private void awaitBody(String path, String expected) throws Exception {
+        long end = System.currentTimeMillis() + 5000;
+        while (!get(path).body().equals(expected)) {
+            if (System.currentTimeMillis() > end)
+                throw new AssertionError("кеш не обновился: " + get(path));
+            Thread.sleep(20);
+        }
+    }
+
+    private Response get(String path) throws Exception {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        Map<String, String> headers = new HashMap<>();
+        int[] status = {200};
+
+        HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getMethod" -> "GET";
+                    case "getRequestURI" -> "/clients" + path;
+                    case "getPathInfo" -> path.isEmpty() ? null : path;
+                    case "getServletContext" -> context;
+                    default -> null;
+                });
+        HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "getCharacterEncoding" -> "ISO-8859-1";
+                    case "isCommitted" -> false;
+                    case "setHeader" -> headers.put((String) args[0], (String) args[1]);
+                    case "setStatus", "sendError" -> status[0] = (Integer) args[0];
+                    case "getOutputStream" -> new ServletOutputStream() {
+                        @Override
+                        public void write(int b) {
+                            body.write(b);
+                        }
+
+                        @Override
+                        public boolean isReady() {
+                            return true;
+                        }
+
+                        @Override
+                        public void setWriteListener(WriteListener listener) {
+                        }
+                    };
+                    default -> null;
+                });
+
+        filter.doFilter(request, response, servlet);
+        return new Response(status[0], headers.get("X-Cache"), body.toString(StandardCharsets.UTF_8));
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Statement stmt = db.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    private ServletConfig servletConfig() {
+        return new ServletConfig() {
+            public String getServletName() {
+                return "ClientServlet";
+            }
+
+            public ServletContext getServletContext() {
+                return context;
+            }
+
+            public String getInitParameter(String name) {
+                return null;
+            }
+
+            public Enumeration<String> getInitParameterNames() {
+                return Collections.emptyEnumeration();
+            }
+        };
+    }
+
+    private FilterConfig filterConfig(Map<String, String> params) {
+        return new FilterConfig() {
+            public String getFilterName() {
+                return "ResponseCacheFilter";
+            }
+
+            public ServletContext getServletContext() {
+                return context;
+            }
+
+            public String getInitParameter(String name) {
+                return params.get(name);
+            }
+
+            public Enumeration<String> getInitParameterNames() {
+                return Collections.enumeration(params.keySet());
+            }
+        };
+    }
+}